@@ -0,0 +1,188 @@
+package virusgame.build;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduce una imagen ARGB a una paleta de hasta 256 colores (con alfa), como hace pngquant: median cut ponderado por
+ * nº de píxeles y Floyd-Steinberg atenuado para que los degradados no hagan bandas sin disparar el tamaño del PNG.
+ */
+public final class Paleta {
+
+    private Paleta() {
+    }
+
+    public static BufferedImage cuantiza(BufferedImage src, int maxColores, float difuminado) {
+        final int w = src.getWidth();
+        final int h = src.getHeight();
+        final int[] px = src.getRGB(0, 0, w, h, null, 0, w);
+        // todos los transparentes son el mismo color
+        for (int i = 0; i < px.length; i++)
+            if (px[i] >>> 24 == 0)
+                px[i] = 0;
+
+        final int[] paleta = paleta(px, maxColores);
+        final byte[] r = new byte[paleta.length];
+        final byte[] g = new byte[paleta.length];
+        final byte[] b = new byte[paleta.length];
+        final byte[] a = new byte[paleta.length];
+        for (int i = 0; i < paleta.length; i++) {
+            a[i] = (byte) (paleta[i] >>> 24);
+            r[i] = (byte) (paleta[i] >> 16);
+            g[i] = (byte) (paleta[i] >> 8);
+            b[i] = (byte) paleta[i];
+        }
+        final BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(8, paleta.length, r, g, b, a));
+        final byte[] out = ((DataBufferByte) dst.getRaster().getDataBuffer()).getData();
+
+        // error acumulado por canal de esta fila y la siguiente, con un píxel de margen a cada lado
+        float[] fila = new float[(w + 2) * 4];
+        float[] siguiente = new float[(w + 2) * 4];
+        final Map<Integer, Integer> cercanos = new HashMap<>();
+        for (int y = 0; y < h; y++) {
+            Arrays.fill(siguiente, 0);
+            for (int x = 0; x < w; x++) {
+                final int p = px[y * w + x];
+                int q = 0;
+                if (p != 0)
+                    for (int c = 0; c < 4; c++)
+                        q |= Math.max(0, Math.min(255, Math.round(canal(p, c) + fila[(x + 1) * 4 + c]))) << c * 8;
+                final int i = cercanos.computeIfAbsent(q, k -> cercano(paleta, k));
+                out[y * w + x] = (byte) i;
+                for (int c = 0; c < 4; c++) {
+                    final float e = difuminado * (canal(q, c) - canal(paleta[i], c));
+                    fila[(x + 2) * 4 + c] += e * 7 / 16;
+                    siguiente[x * 4 + c] += e * 3 / 16;
+                    siguiente[(x + 1) * 4 + c] += e * 5 / 16;
+                    siguiente[(x + 2) * 4 + c] += e / 16;
+                }
+            }
+            final float[] t = fila;
+            fila = siguiente;
+            siguiente = t;
+        }
+        return dst;
+    }
+
+    private static int canal(int argb, int c) {
+        return argb >>> c * 8 & 255;
+    }
+
+    /**
+     * Median cut: parte siempre la caja con más píxeles por rango de su canal más ancho, por la mediana.
+     */
+    private static int[] paleta(int[] px, int maxColores) {
+        final Map<Integer, int[]> cuenta = new HashMap<>();
+        for (int p : px)
+            cuenta.computeIfAbsent(p, k -> new int[1])[0]++;
+        final int[] colores = new int[cuenta.size()];
+        final int[] pesos = new int[colores.length];
+        int n = 0;
+        for (Map.Entry<Integer, int[]> e : cuenta.entrySet()) {
+            colores[n] = e.getKey();
+            pesos[n++] = e.getValue()[0];
+        }
+
+        // cada caja es un rango [desde, hasta) de colores
+        final List<int[]> cajas = new ArrayList<>();
+        cajas.add(new int[]{0, colores.length});
+        while (cajas.size() < maxColores) {
+            int mejor = -1;
+            int mejorCanal = 0;
+            long mejorValor = 0;
+            for (int i = 0; i < cajas.size(); i++) {
+                final int[] caja = cajas.get(i);
+                if (caja[1] - caja[0] < 2)
+                    continue;
+                final int[] min = {255, 255, 255, 255};
+                final int[] max = new int[4];
+                long peso = 0;
+                for (int j = caja[0]; j < caja[1]; j++) {
+                    peso += pesos[j];
+                    for (int c = 0; c < 4; c++) {
+                        min[c] = Math.min(min[c], canal(colores[j], c));
+                        max[c] = Math.max(max[c], canal(colores[j], c));
+                    }
+                }
+                for (int c = 0; c < 4; c++)
+                    if (peso * (max[c] - min[c]) > mejorValor) {
+                        mejorValor = peso * (max[c] - min[c]);
+                        mejor = i;
+                        mejorCanal = c;
+                    }
+            }
+            if (mejor < 0)
+                break;
+            final int[] caja = cajas.get(mejor);
+            ordena(colores, pesos, caja[0], caja[1], mejorCanal);
+            long total = 0;
+            for (int j = caja[0]; j < caja[1]; j++)
+                total += pesos[j];
+            long acumulado = 0;
+            int m = caja[0];
+            while (m < caja[1] - 1 && (acumulado += pesos[m]) * 2 < total)
+                m++;
+            m = Math.max(caja[0] + 1, Math.min(m + 1, caja[1] - 1));
+            cajas.set(mejor, new int[]{caja[0], m});
+            cajas.add(new int[]{m, caja[1]});
+        }
+
+        // cada color de la paleta es la media de su caja ponderada por píxeles
+        final int[] paleta = new int[cajas.size()];
+        for (int i = 0; i < paleta.length; i++) {
+            final int[] caja = cajas.get(i);
+            final long[] suma = new long[4];
+            long peso = 0;
+            for (int j = caja[0]; j < caja[1]; j++) {
+                peso += pesos[j];
+                for (int c = 0; c < 4; c++)
+                    suma[c] += (long) canal(colores[j], c) * pesos[j];
+            }
+            for (int c = 0; c < 4; c++)
+                paleta[i] |= (int) ((suma[c] + peso / 2) / peso) << c * 8;
+        }
+        return paleta;
+    }
+
+    private static void ordena(int[] colores, int[] pesos, int desde, int hasta, int c) {
+        // se ordenan índices (por canal y, a igualdad, por color) para que el peso no tenga que caber en la clave
+        final Integer[] idx = new Integer[hasta - desde];
+        for (int j = desde; j < hasta; j++)
+            idx[j - desde] = j;
+        Arrays.sort(idx, Comparator.<Integer>comparingInt(j -> canal(colores[j], c))
+                .thenComparingLong(j -> colores[j] & 0xffffffffL));
+        final int[] cs = new int[idx.length];
+        final int[] ps = new int[idx.length];
+        for (int k = 0; k < idx.length; k++) {
+            cs[k] = colores[idx[k]];
+            ps[k] = pesos[idx[k]];
+        }
+        System.arraycopy(cs, 0, colores, desde, cs.length);
+        System.arraycopy(ps, 0, pesos, desde, ps.length);
+    }
+
+    private static int cercano(int[] paleta, int argb) {
+        int mejor = 0;
+        long mejorDistancia = Long.MAX_VALUE;
+        for (int i = 0; i < paleta.length; i++) {
+            long d = 0;
+            for (int c = 0; c < 4; c++) {
+                final int x = canal(argb, c) - canal(paleta[i], c);
+                d += x * x;
+            }
+            if (d < mejorDistancia) {
+                mejorDistancia = d;
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+}
@@ -0,0 +1,169 @@
+package com.computermind.virusgame;
+
+import com.computermind.sfp.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.computermind.virusgame.Carta.MEDICINA_1;
+import static com.computermind.virusgame.Carta.MEDICINA_2;
+import static com.computermind.virusgame.Carta.ORGANO_1;
+import static com.computermind.virusgame.Carta.ORGANO_2;
+import static com.computermind.virusgame.Carta.ORGANO_3;
+import static com.computermind.virusgame.Carta.ORGANO_COMODIN;
+import static com.computermind.virusgame.Carta.TRATAMIENTO_ROBAR_ORGANO;
+import static com.computermind.virusgame.Carta.VIRUS_1;
+import static java.util.Arrays.asList;
+
+/**
+ * Bytes por acción (presupuestos en build.gradle, tarea jmhBudget): jugadas que las reglas rechazan, con texto fijo o
+ * formateado, y una que se acepta y aplica (medicina, robo de carta y cambio de turno).
+ * <p>
+ * Las rechazadas no cambian la partida. La aceptada se deshace antes de cada invocación; lo que asigna ese reset (las
+ * copias de las listas copy-on-write) también cuenta en su presupuesto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccionBenchmark {
+
+    private VirusGame game;
+    private Auth yo;
+    private String otro;
+
+    // lo necesario para deshacer la jugada aceptada
+    private Field currentPlayer;
+    private List<Carta> mazo;
+    private List<Msg> messages;
+    private List<Carta> mano;
+    private List<Carta> comodin;
+    private int miAsiento;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        final List<Auth> auths = asList(new Auth("ana", "x"), new Auth("bea", "x"), new Auth("carla", "x"));
+        game = new VirusGame("adm");
+        auths.forEach(game::join);
+        game.start("adm");
+        final String turno = game.status(auths.get(0), 0, false)
+                .either(e -> null, st -> st.getPlayers().stream().filter(PlayerStatus::isCurrent).findAny().get().getId());
+        yo = auths.stream().filter(a -> a.getPlayerId().equals(turno)).findAny().get();
+        final List<Auth> otros = new ArrayList<>(auths);
+        otros.remove(yo);
+        otro = otros.get(0).getPlayerId();
+
+        currentPlayer = campo("currentPlayer");
+        mazo = lista("mazo");
+        messages = lista("messages");
+
+        // se cambian unas cartas por otras y se pasan las manos de los otros (y dos cartas del mazo) a órganos, el nº de
+        // cartas no cambia
+        final Player p = game.porNombre(yo.getPlayerId());
+        mano = p.getMano();
+        miAsiento = p.getAsiento();
+        mano.set(0, VIRUS_1);
+        mano.set(1, MEDICINA_2);
+        mano.set(2, TRATAMIENTO_ROBAR_ORGANO);
+        final Player o = game.porNombre(otro);
+        o.getMano().clear();
+        o.getJugada().add(new CopyOnWriteArrayList<>(asList(ORGANO_1, MEDICINA_1, MEDICINA_1)));
+        game.porNombre(otros.get(1).getPlayerId()).getMano().clear();
+        p.getJugada().add(new CopyOnWriteArrayList<>(asList(ORGANO_2, MEDICINA_2, MEDICINA_2)));
+        mazo.remove(mazo.size() - 1);
+        mazo.remove(mazo.size() - 1);
+        o.getJugada().add(new CopyOnWriteArrayList<>(asList(ORGANO_3)));
+        comodin = new CopyOnWriteArrayList<>(asList(ORGANO_COMODIN));
+        p.getJugada().add(comodin);
+
+        if (virusAOrganoInmune().isRight() || medicinaAOrganoInmune().isRight() || roboDeOrganoInmune().isRight()
+                || virusAOrganoQueNoLoAdmite().isRight())
+            throw new IllegalStateException("las jugadas rechazadas del benchmark deben rechazarse");
+        if (medicina().isLeft())
+            throw new IllegalStateException("la jugada aceptada del benchmark debe aceptarse");
+        deshazMedicina();
+    }
+
+    private Field campo(String nombre) throws NoSuchFieldException {
+        final Field f = VirusGame.class.getDeclaredField(nombre);
+        f.setAccessible(true);
+        return f;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> lista(String nombre) throws ReflectiveOperationException {
+        return (List<T>) campo(nombre).get(game);
+    }
+
+    private Either<String, Void> medicina() {
+        return game.acarta(yo, MEDICINA_2, yo.getPlayerId(), ORGANO_COMODIN);
+    }
+
+    /**
+     * Deja la partida como antes de {@link #medicina}: la medicina en la mano, la carta robada en el mazo, sin sus tres
+     * mensajes (medicina, robo y turno) y con el turno otra vez para mí.
+     */
+    private void deshazMedicina() throws IllegalAccessException {
+        comodin.remove(1);
+        mazo.add(mano.remove(mano.size() - 1));
+        mano.add(1, MEDICINA_2);
+        for (int i = 0; i < 3; i++)
+            messages.remove(messages.size() - 1);
+        currentPlayer.setInt(game, miAsiento);
+    }
+
+    @Benchmark
+    public Either<String, Void> virusAOrganoInmune() {
+        return game.acarta(yo, VIRUS_1, otro, ORGANO_1);
+    }
+
+    @Benchmark
+    public Either<String, Void> medicinaAOrganoInmune() {
+        return game.acarta(yo, MEDICINA_2, yo.getPlayerId(), ORGANO_2);
+    }
+
+    @Benchmark
+    public Either<String, Void> roboDeOrganoInmune() {
+        return game.acarta(yo, TRATAMIENTO_ROBAR_ORGANO, otro, ORGANO_1);
+    }
+
+    // NO_ADMITE, el único de estos fallos que se formatea con String.format
+    @Benchmark
+    public Either<String, Void> virusAOrganoQueNoLoAdmite() {
+        return game.acarta(yo, VIRUS_1, otro, ORGANO_3);
+    }
+
+    /**
+     * La partida de {@link #medicinaAComodin}, aparte para que el reset por invocación no afecte a las demás.
+     */
+    @State(Scope.Thread)
+    public static class Aceptada {
+        private final AccionBenchmark partida = new AccionBenchmark();
+
+        @Setup
+        public void setup() throws ReflectiveOperationException {
+            partida.setup();
+        }
+
+        @Setup(Level.Invocation)
+        public void deshaz() throws IllegalAccessException {
+            if (partida.comodin.size() > 1)
+                partida.deshazMedicina();
+        }
+    }
+
+    @Benchmark
+    public Either<String, Void> medicinaAComodin(Aceptada aceptada) {
+        return aceptada.partida.medicina();
+    }
+}
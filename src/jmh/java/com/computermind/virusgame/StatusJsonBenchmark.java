@@ -0,0 +1,65 @@
+package com.computermind.virusgame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes por status serializado con {@link GameStatusJson} (presupuestos en build.gradle, tarea jmhBudget): el poll de
+ * cada segundo, con las manos y jugadas de una partida ya empezada y los mensajes del último turno (jugada, robo y
+ * cambio de turno), tal cual lo pide index.html y con los textos de los clientes antiguos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatusJsonBenchmark {
+
+    private static final int MENSAJES_TURNO = 3;
+
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private Resp<GameStatus> resp;
+    private Resp<GameStatus> respConTextos;
+
+    @Setup
+    public void setup() {
+        final VirusGame game = new VirusGame("adm");
+        final List<Auth> auths = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final Auth a = new Auth("jugador " + i, "x");
+            auths.add(a);
+            game.join(a);
+        }
+        game.start("adm");
+        // tres rondas poniendo órganos (o tirando): hay jugadas y nadie puede tener aún los cuatro órganos
+        for (int ronda = 0; ronda < 3; ronda++)
+            for (Auth a : auths)
+                for (Carta c : game.porNombre(a.getPlayerId()).getMano())
+                    if ((c.isOrgano() && game.aplayer(a, c, a.getPlayerId()).isRight()) || game.tirar(a, c).isRight())
+                        break;
+        final int mensajes = game.status(auths.get(0), 0, false).either(e -> 0, st -> st.getMessages().size());
+        resp = Resp.success(game.status(auths.get(0), mensajes - MENSAJES_TURNO, false).either(e -> null, st -> st));
+        respConTextos = Resp.success(game.status(auths.get(0), mensajes - MENSAJES_TURNO, true).either(e -> null, st -> st));
+        if (resp.getSuccess().isTerminada() || resp.getSuccess().getMessages().size() != MENSAJES_TURNO)
+            throw new IllegalStateException("el status del benchmark debe llevar los mensajes del último turno");
+    }
+
+    @Benchmark
+    public void escribeStatus() throws IOException {
+        GameStatusJson.write(resp, out);
+    }
+
+    @Benchmark
+    public void escribeStatusConTextos() throws IOException {
+        GameStatusJson.write(respConTextos, out);
+    }
+}
@@ -0,0 +1,202 @@
+package com.computermind.virusgame;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión delante del {@link Controller}: limita peticiones por jugador y por sala (token bucket) y
+ * el nº de peticiones concurrentes del nodo. Rechaza con 429 y Retry-After antes de buscar la sala.
+ * <p>
+ * Cuando el nodo está saturado se descartan antes los polls de status que las acciones, un status perdido se
+ * recupera en el siguiente poll mientras que una acción perdida la nota el jugador.
+ */
+@Component
+public class AdmissionControl implements HandlerInterceptor {
+
+    private static final String EN_CURSO = AdmissionControl.class.getName() + ".EN_CURSO";
+
+    @Value("${virusgame.admission.player-rate:5}")
+    private double playerRate;
+
+    @Value("${virusgame.admission.game-rate:40}")
+    private double gameRate;
+
+    @Value("${virusgame.admission.new-game-rate:0.2}")
+    private double newGameRate;
+
+    @Value("${virusgame.admission.spectator-rate:500}")
+    private double spectatorRate;
+
+    @Value("${virusgame.admission.max-concurrent:64}")
+    private int maxConcurrent;
+
+    @Value("${virusgame.admission.max-concurrent-status:48}")
+    private int maxConcurrentStatus;
+
+    @Value("${virusgame.admission.max-concurrent-spectators:32}")
+    private int maxConcurrentSpectators;
+
+    private Cache<String, RateLimiter> porJugador;
+    private Cache<String, RateLimiter> porSala;
+    private Cache<String, RateLimiter> salasNuevasPorIp;
+    private Cache<String, RateLimiter> espectadoresPorIp;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicInteger espectadoresEnCurso = new AtomicInteger();
+
+    private final LongAdder rechazosJugador = new LongAdder();
+    private final LongAdder rechazosSala = new LongAdder();
+    private final LongAdder rechazosSalaNueva = new LongAdder();
+    private final LongAdder rechazosStatus = new LongAdder();
+    private final LongAdder rechazosAccion = new LongAdder();
+    private final LongAdder rechazosEspectador = new LongAdder();
+
+    // las claves vienen del cliente, acotamos para que no se pueda llenar la memoria con gameIds inventados
+    @PostConstruct
+    public void initialize() {
+        porJugador = CacheBuilder
+                .newBuilder()
+                .maximumSize(100000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+        porSala = CacheBuilder
+                .newBuilder()
+                .maximumSize(10000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+        salasNuevasPorIp = CacheBuilder
+                .newBuilder()
+                .maximumSize(100000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+        espectadoresPorIp = CacheBuilder
+                .newBuilder()
+                .maximumSize(100000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    private static RateLimiter limiter(Cache<String, RateLimiter> limiters, String key, double rate) {
+        try {
+            return limiters.get(key, () -> RateLimiter.create(rate));
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static boolean isStatus(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/status");
+    }
+
+    private static boolean isSpectate(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/spectate");
+    }
+
+    private static boolean isNew(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/new");
+    }
+
+    private static long retryAfter(double rate) {
+        return Math.max(1, (long) Math.ceil(1.0 / rate));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (isSpectate(request))
+            return admiteEspectador(request, response);
+        final String gameId = request.getParameter("gameId");
+        final String player = request.getParameter("player");
+        // la sesión la identifica el jugador dentro de la sala con su contraseña (así nadie puede agotar el bucket de
+        // otro sólo con saber su nombre); sin jugador (new, start) sólo la IP, que no cambia por mucho que se inventen
+        // gameIds
+        final String sesion = gameId != null && player != null
+                ? gameId + '\u0000' + player + '\u0000' + request.getParameter("password")
+                : request.getRemoteAddr();
+        if (!limiter(porJugador, sesion, playerRate).tryAcquire()) {
+            rechazosJugador.increment();
+            return rechaza(response, retryAfter(playerRate), "¡Demasiadas peticiones! espera un poco...");
+        }
+        // cada sala nueva se queda en memoria hasta que se hiberna, se crean pocas por IP
+        if (isNew(request) && !limiter(salasNuevasPorIp, request.getRemoteAddr(), newGameRate).tryAcquire()) {
+            rechazosSalaNueva.increment();
+            return rechaza(response, retryAfter(newGameRate), "¡Demasiadas salas nuevas! espera un poco...");
+        }
+        // los status no cuentan para la sala: cada jugador hace uno por segundo y en sala grande
+        // superarían el límite sin hacer nada; ya los limita el bucket de cada jugador y su tope de concurrencia
+        if (gameId != null && !isStatus(request) && !limiter(porSala, gameId, gameRate).tryAcquire()) {
+            rechazosSala.increment();
+            return rechaza(response, retryAfter(gameRate), "¡Demasiadas peticiones en la sala! espera un poco...");
+        }
+
+        final boolean status = isStatus(request);
+        final int n = enCurso.incrementAndGet();
+        if (n > (status ? maxConcurrentStatus : maxConcurrent)) {
+            enCurso.decrementAndGet();
+            (status ? rechazosStatus : rechazosAccion).increment();
+            return rechaza(response, 1, "¡El servidor está saturado! espera un poco...");
+        }
+        request.setAttribute(EN_CURSO, enCurso);
+        return true;
+    }
+
+    /**
+     * Los espectadores no usan el bucket de sesión ni el de la sala: todos reciben la misma vista (304 si no ha cambiado)
+     * y detrás de un NAT, o de un proxy sin cabeceras de reenvío, comparten IP. Tienen un bucket por IP mucho más alto
+     * y su propio tope de concurrencia, así muchos espectadores no quitan sitio a los polls de los jugadores.
+     */
+    private boolean admiteEspectador(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!limiter(espectadoresPorIp, request.getRemoteAddr(), spectatorRate).tryAcquire()) {
+            rechazosEspectador.increment();
+            return rechaza(response, retryAfter(spectatorRate), "¡Demasiadas peticiones! espera un poco...");
+        }
+        if (espectadoresEnCurso.incrementAndGet() > maxConcurrentSpectators) {
+            espectadoresEnCurso.decrementAndGet();
+            rechazosEspectador.increment();
+            return rechaza(response, 1, "¡El servidor está saturado! espera un poco...");
+        }
+        request.setAttribute(EN_CURSO, espectadoresEnCurso);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // el contador en el que se ha admitido la petición
+        final Object contador = request.getAttribute(EN_CURSO);
+        if (contador != null)
+            ((AtomicInteger) contador).decrementAndGet();
+    }
+
+    private static boolean rechaza(HttpServletResponse response, long retryAfter, String error) throws IOException {
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(retryAfter));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getOutputStream().write(("{\"error\":\"" + error + "\",\"success\":null}").getBytes(StandardCharsets.UTF_8));
+        return false;
+    }
+
+    public AdmissionStats getStats() {
+        final AdmissionStats st = new AdmissionStats();
+        st.setEnCurso(enCurso.get());
+        st.setEspectadoresEnCurso(espectadoresEnCurso.get());
+        st.setRechazosJugador(rechazosJugador.sum());
+        st.setRechazosSala(rechazosSala.sum());
+        st.setRechazosSalaNueva(rechazosSalaNueva.sum());
+        st.setRechazosStatus(rechazosStatus.sum());
+        st.setRechazosAccion(rechazosAccion.sum());
+        st.setRechazosEspectador(rechazosEspectador.sum());
+        return st;
+    }
+}
@@ -0,0 +1,17 @@
+package com.computermind.virusgame;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AdmissionStats {
+    private int enCurso;
+    private int espectadoresEnCurso;
+    private long rechazosJugador;
+    private long rechazosSala;
+    private long rechazosSalaNueva;
+    private long rechazosStatus;
+    private long rechazosAccion;
+    private long rechazosEspectador;
+}
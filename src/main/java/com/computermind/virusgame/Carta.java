@@ -37,14 +37,20 @@ public enum Carta {
 
     private final String nombre;
     private final String help;
+    // ORGANO_1 -> ORGANO y 1, para no partir el nombre en cada `admite`
+    private final String clase;
+    private final String grupo;
 
     Carta(String nombre, String help) {
         this.nombre = nombre;
         this.help = help;
+        final String[] xs = name().split("_");
+        this.clase = xs[0];
+        this.grupo = xs.length > 1 ? xs[1] : "";
     }
 
     public static boolean isOrgano(Carta carta) {
-        return getOrganos().contains(carta);
+        return ORGANO_COMODIN.equals(carta) || ORGANO_1.equals(carta) || ORGANO_2.equals(carta) || ORGANO_3.equals(carta) || ORGANO_4.equals(carta);
     }
 
     private static boolean isMedicina(Carta carta) {
@@ -84,12 +90,12 @@ public enum Carta {
     }
 
     public boolean admite(Carta carta) {
-        final String[] a = name().split("_");
-        final String[] b = carta.name().split("_");
-        if (("ORGANO".equals(a[0]) && ("VIRUS".equals(b[0]) || "MEDICINA".equals(b[0]))) // un órgano admite tanto virus como medicina
-                || ("VIRUS".equals(a[0]) && "MEDICINA".equals(b[0])) // un virus admite una medicina
-                || ("MEDICINA".equals(a[0]) && "VIRUS".equals(b[0]))) // y una medicina un virus
-            return "COMODIN".equals(a[1]) || "COMODIN".equals(b[1]) || a[1].equals(b[1]); // o alguno es comodín o ambos del mismo tipo
+        final String a = clase;
+        final String b = carta.clase;
+        if (("ORGANO".equals(a) && ("VIRUS".equals(b) || "MEDICINA".equals(b))) // un órgano admite tanto virus como medicina
+                || ("VIRUS".equals(a) && "MEDICINA".equals(b)) // un virus admite una medicina
+                || ("MEDICINA".equals(a) && "VIRUS".equals(b))) // y una medicina un virus
+            return "COMODIN".equals(grupo) || "COMODIN".equals(carta.grupo) || grupo.equals(carta.grupo); // o alguno es comodín o ambos del mismo tipo
         return false;
     }
 
@@ -1,12 +1,15 @@
 package com.computermind.virusgame;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import static com.computermind.virusgame.Resp.from;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 @CrossOrigin(origins = "*")
@@ -18,6 +21,9 @@ public class Controller {
     @Autowired
     private VirusGameService service;
 
+    @Autowired
+    private AdmissionControl admissionControl;
+
     private static String clean(String s) {
         if (s == null)
             return "";
@@ -26,8 +32,8 @@ public class Controller {
     }
 
     @RequestMapping(path = "/new", method = POST)
-    public Resp<Void> newGame(final String gameId, final String password) {
-        return from(service.create(gameId, password));
+    public Resp<Void> newGame(final String gameId, final String password, final Boolean grande) {
+        return from(service.create(gameId, password, grande != null && grande));
     }
 
     @RequestMapping(path = "/join", method = POST)
@@ -41,8 +47,16 @@ public class Controller {
     }
 
     @RequestMapping(path = "/status", method = POST)
-    public Resp<GameStatus> getStatus(final String gameId, final String player, final String password) {
-        return from(service.status(gameId, new Auth(player, password)));
+    public Resp<GameStatus> getStatus(final String gameId, final String player, final String password, final Integer desde) {
+        return from(service.status(gameId, new Auth(player, password), desde == null ? 0 : desde, desde == null));
+    }
+
+    // todos los espectadores comparten la misma vista ya serializada; con If-None-Match se responde 304 si no ha cambiado
+    @RequestMapping(path = "/spectate", method = GET)
+    public ResponseEntity<byte[]> spectate(final String gameId) {
+        return service.spectate(gameId).either(
+                e -> ResponseEntity.ok().contentType(APPLICATION_JSON).body(GameStatusJson.toBytes(Resp.error(e))),
+                v -> ResponseEntity.ok().contentType(APPLICATION_JSON).eTag(Long.toHexString(v.getVersion())).body(v.getJson()));
     }
 
     @RequestMapping(path = "/accion", method = POST)
@@ -51,4 +65,9 @@ public class Controller {
                              final String dstPlayer, final String dstKind, final String dstTipo) {
         return from(service.accion(gameId, new Auth(player, password), clean(srcPlayer), clean(srcKind), clean(srcTipo), clean(dstPlayer), clean(dstKind), clean(dstTipo)));
     }
+
+    @RequestMapping(path = "/admission", method = GET)
+    public Resp<AdmissionStats> admission() {
+        return Resp.success(admissionControl.getStats());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.computermind.virusgame;
+
+/**
+ * Tipos de evento de la partida. El texto se formatea sólo cuando se pide ({@link Msg#getText()}), el formato
+ * recibe por posición: 1 jugador A, 2 jugador B, 3 carta A y 4 carta B.
+ */
+public enum Evento {
+    JOIN("'%1$s' se une a la partida!"),
+    START("¡Empieza la partida '%1$s'!"),
+    DISCARD("'%1$s' tira '%3$s'"),
+    DRAW("'%1$s' roba carta"),
+    TURN("Es el turno de '%1$s'"),
+    ADD_ORGAN("'%1$s' se añade un '%3$s'"),
+    TRANSPLANT_ALL("¡'%1$s' hace transplante total con '%2$s'!"),
+    DISCARD_ALL("¡Todos los jugadores excepto '%1$s' se quedan sin cartas!"),
+    STEAL("'%1$s' roba el '%3$s' a '%2$s'"),
+    TRANSPLANT("'%1$s' cambia su '%3$s' por el '%4$s' de '%2$s'"),
+    CANCEL("El '%3$s' anula '%4$s'"),
+    ORGAN_LOST("El jugador '%2$s' pierde su órgano '%3$s'"),
+    INFECT("El '%3$s' de '%2$s' queda infectado por '%4$s'"),
+    CURE("'%1$s' aplica '%3$s' al '%4$s'"),
+    MEDICATE("'%1$s' aplica '%3$s' a su '%4$s'"),
+    IMMUNIZE("¡El jugador '%1$s' ha inmunizado su '%3$s'!");
+
+    private final String formato;
+
+    Evento(String formato) {
+        this.formato = formato;
+    }
+
+    public String texto(String jugadorA, String jugadorB, Carta cartaA, Carta cartaB) {
+        return String.format(formato, jugadorA, jugadorB,
+                cartaA == null ? null : cartaA.getName(),
+                cartaB == null ? null : cartaB.getName());
+    }
+}
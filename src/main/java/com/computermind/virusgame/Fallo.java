@@ -0,0 +1,62 @@
+package com.computermind.virusgame;
+
+import static com.computermind.virusgame.Carta.TRATAMIENTO_DESCARTE;
+import static com.computermind.virusgame.Carta.TRATAMIENTO_INFECCION;
+import static com.computermind.virusgame.Carta.TRATAMIENTO_TRANSPLANTA_1;
+
+/**
+ * Por qué no se puede hacer una acción. Las reglas sólo devuelven el código, el texto se formatea al devolvérselo al
+ * cliente ({@link #mensaje}) con, por posición: 1 el jugador que actúa, 2 el jugador destino, 3 la carta que se usa y
+ * 4 la carta destino.
+ */
+public enum Fallo {
+    NO_EXISTES("El jugador '%1$s' no existe!"),
+    CONTRASENA("El jugador no existe o contraseña inválida!"),
+    NO_ES_TU_TURNO("No es el turno de '%1$s'"),
+    TERMINADA("La partida ha terminado"),
+    NO_EXISTE_DESTINO("El jugador '%2$s' no existe!"),
+    NO_TIENES_CARTA("No tienes '%3$s' en la mano"),
+    DESTINO_NO_ORGANO("Las cartas de destino siempre tienen que ser un órgano"),
+    SOLO_USAR("Sólo '" + TRATAMIENTO_DESCARTE.getName() + "' y '" + TRATAMIENTO_INFECCION.getName() + "' pueden usarse aquí"),
+    NO_APLICABLE_A_OTRO("Al órgano de un oponente sólo puedes aplicar o un virus, o un transplante (envía tu peor órgano a su mejor órgano) o un robo"),
+    NO_EXISTE_ORGANO("No existe ese órgano en la jugada"),
+
+    // virus
+    NO_ADMITE("Un %4$s no admite %3$s"),
+    VIRUS_INMUNE("No puedes poner un virus en un órgano inmune"),
+
+    // robo
+    NO_TIENE_ORGANO_ROBO("El jugador '%2$s' no tiene un '%4$s'"),
+    ROBO_INMUNE("No puedes robar un órgano inmune"),
+    YA_TIENES_ORGANO_ROBO("Ya tienes ese órgano, no lo puedes robar."),
+
+    // transplante
+    SIN_TRANSPLANTE("Para poder transplantar un órgano tienes que tener la carta '" + TRATAMIENTO_TRANSPLANTA_1.getName() + "'"),
+    YA_TIENE_ORGANO("El jugador '%2$s' ya tiene un '%3$s'"),
+    YA_TIENES_ORGANO("Ya tienes un '%4$s'"),
+    NO_TIENES_ORGANO("No tienes ese órgano"),
+    NO_TIENE_ORGANO("No tiene ese órgano"),
+    TRANSPLANTE_INMUNE("No puedes trasplantar un órgano inmune"),
+
+    // medicina
+    SOLO_MEDICINAS("Sólo puedes aplicarte medicinas"),
+    MEDICINA_NO_SIRVE("Esa medicina no sirve para este órgano"),
+    MEDICINA_NO_CURA("Ouch! esta medicina no cura cierto virus?!"),
+    YA_INMUNE("El órgano ya es inmune, no se puede aplicar más medicina");
+
+    private final String formato;
+    private final boolean constante;
+
+    Fallo(String formato) {
+        this.formato = formato;
+        this.constante = formato.indexOf('%') < 0;
+    }
+
+    public String mensaje(String jugador, String otro, Carta carta, Carta destino) {
+        if (constante)
+            return formato;
+        return String.format(formato, jugador, otro,
+                carta == null ? null : carta.getName(),
+                destino == null ? null : destino.getName());
+    }
+}
@@ -1,5 +1,6 @@
 package com.computermind.virusgame;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,4 +12,7 @@ public class GameStatus {
     private boolean terminada;
     private List<PlayerStatus> players;
     private List<Msg> messages;
+    // los clientes antiguos (sin `desde`) no saben formatear los eventos, a ellos se les manda también `error` y `text`
+    @JsonIgnore
+    private boolean textos;
 }
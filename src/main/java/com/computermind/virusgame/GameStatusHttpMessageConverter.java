@@ -0,0 +1,64 @@
+package com.computermind.virusgame;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Escribe las respuestas {@code Resp<GameStatus>} con {@link GameStatusJson}; el resto sigue yendo por Jackson.
+ */
+public class GameStatusHttpMessageConverter extends AbstractGenericHttpMessageConverter<Resp<GameStatus>> {
+
+    public GameStatusHttpMessageConverter() {
+        super(new MediaType(MediaType.APPLICATION_JSON, UTF_8));
+    }
+
+    private static boolean isRespGameStatus(Type type) {
+        return type instanceof ParameterizedType
+                && Resp.class.equals(((ParameterizedType) type).getRawType())
+                && GameStatus.class.equals(((ParameterizedType) type).getActualTypeArguments()[0]);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    // sin el tipo genérico no sabemos si es un Resp<GameStatus>
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isRespGameStatus(type) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Resp<GameStatus> resp, Type type, HttpOutputMessage outputMessage) throws IOException {
+        GameStatusJson.write(resp, outputMessage.getBody());
+    }
+
+    @Override
+    public Resp<GameStatus> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException("sólo se escriben status");
+    }
+
+    @Override
+    protected Resp<GameStatus> readInternal(Class<? extends Resp<GameStatus>> clazz, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException("sólo se escriben status");
+    }
+}
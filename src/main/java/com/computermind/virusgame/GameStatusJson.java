@@ -0,0 +1,264 @@
+package com.computermind.virusgame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serializa {@code Resp<GameStatus>} directamente a UTF-8 sin pasar por la reflexión de Jackson. Las cartas y los
+ * eventos van pre-codificados y el buffer de salida se reutiliza por hilo, así que un status apenas asigna memoria.
+ * <p>
+ * Produce el mismo JSON (mismos campos y orden) que Jackson con los getters de {@link GameStatus}, {@link PlayerStatus}
+ * y {@link Msg}, salvo que los mensajes sólo llevan {@code error} y {@code text} si el status es para un cliente antiguo
+ * ({@link GameStatus#isTextos()}).
+ */
+public final class GameStatusJson {
+
+    // si un status ha necesitado más que esto no nos quedamos el buffer
+    private static final int MAX_BUFFER_RETENIDO = 1 << 20;
+
+    private static final byte[][] CARTAS = preCodifica(Carta.values());
+    private static final byte[][] EVENTOS = preCodifica(Evento.values());
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+
+    private static final byte[] ERROR = ascii("{\"error\":");
+    private static final byte[] SUCCESS = ascii(",\"success\":");
+    private static final byte[] TERMINADA = ascii("{\"terminada\":");
+    private static final byte[] PLAYERS = ascii(",\"players\":[");
+    private static final byte[] MESSAGES = ascii("],\"messages\":[");
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] ASIENTO = ascii(",\"asiento\":");
+    private static final byte[] MANO = ascii(",\"mano\":");
+    private static final byte[] JUGADA = ascii(",\"jugada\":[");
+    private static final byte[] CURRENT = ascii("],\"current\":");
+    private static final byte[] EVENTO = ascii("{\"evento\":");
+    private static final byte[] JUGADOR_A = ascii(",\"jugadorA\":");
+    private static final byte[] JUGADOR_B = ascii(",\"jugadorB\":");
+    private static final byte[] CARTA_A = ascii(",\"cartaA\":");
+    private static final byte[] CARTA_B = ascii(",\"cartaB\":");
+    private static final byte[] MSG_ERROR = ascii(",\"error\":");
+    private static final byte[] TEXT = ascii(",\"text\":");
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final ThreadLocal<GameStatusJson> BUFFERS = ThreadLocal.withInitial(GameStatusJson::new);
+
+    private byte[] buf = new byte[4096];
+    private int len;
+    private boolean textos;
+
+    // mano y jugada son las listas vivas (copy-on-write) del jugador: su forEach recorre una instantánea sin crear un
+    // iterador, y no por índice, que fallaría si se quita una carta a la vez
+    private final Consumer<PlayerStatus> escribePlayer = ps -> {
+        coma();
+        player(ps);
+    };
+    private final Consumer<Msg> escribeMsg = m -> {
+        coma();
+        msg(m);
+    };
+    private final Consumer<List<Carta>> escribeCartas = xs -> {
+        coma();
+        cartas(xs);
+    };
+    private final Consumer<Carta> escribeCarta = c -> {
+        coma();
+        carta(c);
+    };
+
+    private GameStatusJson() {
+    }
+
+    public static void write(Resp<GameStatus> resp, OutputStream out) throws IOException {
+        final GameStatusJson w = BUFFERS.get();
+        w.len = 0;
+        w.resp(resp);
+        out.write(w.buf, 0, w.len);
+        if (w.buf.length > MAX_BUFFER_RETENIDO)
+            BUFFERS.remove();
+    }
+
+    public static byte[] toBytes(Resp<GameStatus> resp) {
+        final GameStatusJson w = BUFFERS.get();
+        w.len = 0;
+        w.resp(resp);
+        final byte[] r = Arrays.copyOf(w.buf, w.len);
+        if (w.buf.length > MAX_BUFFER_RETENIDO)
+            BUFFERS.remove();
+        return r;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(UTF_8);
+    }
+
+    private static byte[][] preCodifica(Enum<?>[] xs) {
+        final byte[][] r = new byte[xs.length][];
+        for (Enum<?> x : xs)
+            r[x.ordinal()] = ascii('"' + x.name() + '"');
+        return r;
+    }
+
+    private void resp(Resp<GameStatus> resp) {
+        put(ERROR);
+        string(resp.getError());
+        put(SUCCESS);
+        if (resp.getSuccess() == null)
+            put(NULL);
+        else
+            status(resp.getSuccess());
+        put('}');
+    }
+
+    private void status(GameStatus st) {
+        put(TERMINADA);
+        bool(st.isTerminada());
+        put(PLAYERS);
+        st.getPlayers().forEach(escribePlayer);
+        put(MESSAGES);
+        textos = st.isTextos();
+        st.getMessages().forEach(escribeMsg);
+        put(']');
+        put('}');
+    }
+
+    private void player(PlayerStatus ps) {
+        put(ID);
+        string(ps.getId());
+        put(NAME);
+        string(ps.getName());
+        put(ASIENTO);
+        integer(ps.getAsiento());
+        put(MANO);
+        cartas(ps.getMano());
+        put(JUGADA);
+        ps.getJugada().forEach(escribeCartas);
+        put(CURRENT);
+        bool(ps.isCurrent());
+        put('}');
+    }
+
+    private void msg(Msg m) {
+        put(EVENTO);
+        put(EVENTOS[m.getEvento().ordinal()]);
+        put(JUGADOR_A);
+        integer(m.getJugadorA());
+        put(JUGADOR_B);
+        integer(m.getJugadorB());
+        put(CARTA_A);
+        carta(m.getCartaA());
+        put(CARTA_B);
+        carta(m.getCartaB());
+        if (textos) {
+            put(MSG_ERROR);
+            bool(m.isError());
+            put(TEXT);
+            string(m.getText());
+        }
+        put('}');
+    }
+
+    private void cartas(List<Carta> cartas) {
+        put('[');
+        cartas.forEach(escribeCarta);
+        put(']');
+    }
+
+    // separa los elementos de una lista, todas empiezan por '['
+    private void coma() {
+        if (buf[len - 1] != '[')
+            put(',');
+    }
+
+    private void carta(Carta c) {
+        put(c == null ? NULL : CARTAS[c.ordinal()]);
+    }
+
+    private void bool(boolean b) {
+        put(b ? TRUE : FALSE);
+    }
+
+    private void integer(int n) {
+        if (n < 0) {
+            put('-');
+            n = -n;
+        }
+        int d = 1;
+        while (d <= n / 10)
+            d *= 10;
+        for (; d > 0; d /= 10)
+            put('0' + n / d % 10);
+    }
+
+    private void string(String s) {
+        if (s == null) {
+            put(NULL);
+            return;
+        }
+        // hasta 3 bytes por char (los pares surrogados son 4 bytes en 2 chars) y 6 por escape
+        ensure(s.length() * 6 + 2);
+        final byte[] b = buf;
+        int n = len;
+        b[n++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                b[n++] = '\\';
+                b[n++] = (byte) c;
+            } else if (c < 0x20) {
+                b[n++] = '\\';
+                b[n++] = 'u';
+                b[n++] = '0';
+                b[n++] = '0';
+                b[n++] = HEX[c >> 4];
+                b[n++] = HEX[c & 0xf];
+            } else if (c < 0x80) {
+                b[n++] = (byte) c;
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xc0 | c >> 6);
+                b[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xf0 | cp >> 18);
+                b[n++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                b[n++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                b[n++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xe0 | c >> 12);
+                b[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                b[n++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        b[n++] = '"';
+        len = n;
+    }
+
+    private void put(byte[] xs) {
+        ensure(xs.length);
+        System.arraycopy(xs, 0, buf, len, xs.length);
+        len += xs.length;
+    }
+
+    private void put(int c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) {
+            final byte[] b = new byte[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, b, 0, len);
+            buf = b;
+        }
+    }
+}
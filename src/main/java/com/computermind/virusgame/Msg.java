@@ -1,13 +1,63 @@
 package com.computermind.virusgame;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.Setter;
+import java.util.List;
 
-@Getter
-@Setter
-@AllArgsConstructor
+/**
+ * Un evento de la partida: el tipo, los índices de los jugadores implicados y las cartas (-1 y null si no aplica).
+ */
 public class Msg {
-    private boolean error;
-    private String text;
+    // los jugadores de la partida, sólo para formatear el texto
+    private final List<Player> sala;
+    private final Evento evento;
+    private final short jugadorA;
+    private final short jugadorB;
+    private final Carta cartaA;
+    private final Carta cartaB;
+    // sólo si algún cliente antiguo lo pide, y una vez por evento
+    private volatile String texto;
+
+    public Msg(List<Player> sala, Evento evento, int jugadorA, int jugadorB, Carta cartaA, Carta cartaB) {
+        this.sala = sala;
+        this.evento = evento;
+        this.jugadorA = (short) jugadorA;
+        this.jugadorB = (short) jugadorB;
+        this.cartaA = cartaA;
+        this.cartaB = cartaB;
+    }
+
+    public Evento getEvento() {
+        return evento;
+    }
+
+    public int getJugadorA() {
+        return jugadorA;
+    }
+
+    public int getJugadorB() {
+        return jugadorB;
+    }
+
+    public Carta getCartaA() {
+        return cartaA;
+    }
+
+    public Carta getCartaB() {
+        return cartaB;
+    }
+
+    // los clientes antiguos esperan `error` y `text`
+    public boolean isError() {
+        return false;
+    }
+
+    public String getText() {
+        String t = texto;
+        if (t == null)
+            texto = t = evento.texto(nombre(jugadorA), nombre(jugadorB), cartaA, cartaB);
+        return t;
+    }
+
+    private String nombre(int jugador) {
+        return jugador < 0 ? null : sala.get(jugador).getName();
+    }
 }
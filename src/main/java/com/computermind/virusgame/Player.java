@@ -1,6 +1,5 @@
 package com.computermind.virusgame;
 
-import com.computermind.sfp.Either;
 import lombok.Getter;
 
 import java.util.Collection;
@@ -8,28 +7,35 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
-import static com.computermind.sfp.Either.guard;
-import static com.computermind.sfp.Either.left;
 import static com.computermind.virusgame.Carta.OCULTA;
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.nCopies;
 
 @Getter
 public class Player {
     private final Auth auth;
+    /**
+     * posición en la mesa (y en la lista de jugadores de la partida)
+     */
+    private final int asiento;
     private final List<Carta> mano;
     private final List<List<Carta>> jugada;
 
-    public Player(Auth auth, List<Carta> cartas) {
+    public Player(Auth auth, int asiento, List<Carta> cartas) {
         this.auth = auth;
+        this.asiento = asiento;
         this.mano = new CopyOnWriteArrayList<>(cartas);
         this.jugada = new CopyOnWriteArrayList<>();
     }
 
+    /**
+     * @param auth_ quien lo ve, sólo ve su propia mano; null para los espectadores, que no ven ninguna
+     */
     public PlayerStatus getStatus(Auth auth_, boolean currentPlayer) {
         PlayerStatus ps = new PlayerStatus();
         ps.setId(auth.getPlayerId());
         ps.setName(getName());
-        ps.setMano(auth.is(auth_) ? mano : mano.stream().map(ignore -> OCULTA).collect(toList()));
+        ps.setAsiento(asiento);
+        ps.setMano(auth_ != null && auth.is(auth_) ? mano : nCopies(mano.size(), OCULTA));
         ps.setJugada(getJugada());
         ps.setCurrent(currentPlayer);
         return ps;
@@ -52,14 +58,14 @@ public class Player {
         jugada.addAll(xs);
     }
 
-    public Either<String, List<Carta>> getJugada(Carta organo) {
-        return guard(organo.isOrgano(), "La carta debe ser un órgano")
-                .bind(ignore -> getJugada()
-                        .stream()
-                        .filter(xs -> organo.equals(xs.get(0)))
-                        .<Either<String, List<Carta>>>map(Either::right)
-                        .findAny()
-                        .orElse(left("No existe ese órgano en la jugada")));
+    /**
+     * @return la jugada de ese órgano o null si no lo tiene
+     */
+    public List<Carta> getJugada(Carta organo) {
+        for (List<Carta> xs : jugada)
+            if (organo.equals(xs.get(0)))
+                return xs;
+        return null;
     }
 
     public String getName() {
@@ -10,6 +10,7 @@ import java.util.List;
 public class PlayerStatus {
     private String id;
     private String name;
+    private int asiento;
     private List<Carta> mano;
     private List<List<Carta>> jugada;
     private boolean current;
@@ -0,0 +1,14 @@
+package com.computermind.virusgame;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * El status de espectador ya serializado ({@code Resp<GameStatus>} en JSON) para la versión de la partida indicada.
+ */
+@Getter
+@AllArgsConstructor
+public class SpectatorView {
+    private final long version;
+    private final byte[] json;
+}
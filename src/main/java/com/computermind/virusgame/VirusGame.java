@@ -2,31 +2,108 @@ package com.computermind.virusgame;
 
 import com.computermind.sfp.Either;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static com.computermind.sfp.Either.guard;
 import static com.computermind.sfp.Either.left;
-import static com.computermind.sfp.Either.maybe;
+import static com.computermind.sfp.Either.ofNullable;
 import static com.computermind.sfp.Either.right;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_DESCARTE;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_INFECCION;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_ROBAR_ORGANO;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_TRANSPLANTA_1;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_TRANSPLANTA_TODO;
+import static com.computermind.virusgame.Evento.ADD_ORGAN;
+import static com.computermind.virusgame.Evento.CANCEL;
+import static com.computermind.virusgame.Evento.CURE;
+import static com.computermind.virusgame.Evento.DISCARD;
+import static com.computermind.virusgame.Evento.DISCARD_ALL;
+import static com.computermind.virusgame.Evento.DRAW;
+import static com.computermind.virusgame.Evento.IMMUNIZE;
+import static com.computermind.virusgame.Evento.INFECT;
+import static com.computermind.virusgame.Evento.JOIN;
+import static com.computermind.virusgame.Evento.MEDICATE;
+import static com.computermind.virusgame.Evento.ORGAN_LOST;
+import static com.computermind.virusgame.Evento.START;
+import static com.computermind.virusgame.Evento.STEAL;
+import static com.computermind.virusgame.Evento.TRANSPLANT;
+import static com.computermind.virusgame.Evento.TRANSPLANT_ALL;
+import static com.computermind.virusgame.Evento.TURN;
+import static com.computermind.virusgame.Fallo.CONTRASENA;
+import static com.computermind.virusgame.Fallo.DESTINO_NO_ORGANO;
+import static com.computermind.virusgame.Fallo.MEDICINA_NO_CURA;
+import static com.computermind.virusgame.Fallo.MEDICINA_NO_SIRVE;
+import static com.computermind.virusgame.Fallo.NO_ADMITE;
+import static com.computermind.virusgame.Fallo.NO_APLICABLE_A_OTRO;
+import static com.computermind.virusgame.Fallo.NO_ES_TU_TURNO;
+import static com.computermind.virusgame.Fallo.NO_EXISTES;
+import static com.computermind.virusgame.Fallo.NO_EXISTE_DESTINO;
+import static com.computermind.virusgame.Fallo.NO_EXISTE_ORGANO;
+import static com.computermind.virusgame.Fallo.NO_TIENES_CARTA;
+import static com.computermind.virusgame.Fallo.NO_TIENES_ORGANO;
+import static com.computermind.virusgame.Fallo.NO_TIENE_ORGANO;
+import static com.computermind.virusgame.Fallo.NO_TIENE_ORGANO_ROBO;
+import static com.computermind.virusgame.Fallo.ROBO_INMUNE;
+import static com.computermind.virusgame.Fallo.SIN_TRANSPLANTE;
+import static com.computermind.virusgame.Fallo.SOLO_MEDICINAS;
+import static com.computermind.virusgame.Fallo.SOLO_USAR;
+import static com.computermind.virusgame.Fallo.TERMINADA;
+import static com.computermind.virusgame.Fallo.TRANSPLANTE_INMUNE;
+import static com.computermind.virusgame.Fallo.VIRUS_INMUNE;
+import static com.computermind.virusgame.Fallo.YA_INMUNE;
+import static com.computermind.virusgame.Fallo.YA_TIENES_ORGANO;
+import static com.computermind.virusgame.Fallo.YA_TIENES_ORGANO_ROBO;
+import static com.computermind.virusgame.Fallo.YA_TIENE_ORGANO;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 
 public class VirusGame {
+    private static final int CARTAS_POR_BARAJA = 65;
+
+    /**
+     * En sala grande se añade otra baraja por cada tantos jugadores (y cuando se acaban las cartas)
+     */
+    private static final int JUGADORES_POR_BARAJA = 6;
+
+    /**
+     * En sala grande cada jugador ve a los que tiene a cada lado hasta esta distancia...
+     */
+    private static final int VECINOS = 3;
+
+    /**
+     * ...y a los que aparecen en estos últimos mensajes
+     */
+    private static final int MENSAJES_AFECTADOS = 10;
+
+    /**
+     * Los espectadores reciben sólo los últimos mensajes
+     */
+    private static final int MENSAJES_ESPECTADOR = 20;
+
     private final String password;
+    private final boolean salaGrande;
     private final List<Player> players;
+    private final Map<String, Player> porNombre;
     private final List<Carta> mazo;
     private final List<Carta> ozam;
     private final List<Msg> messages;
     private boolean finDeLaPartida;
+    private int barajas;
+
+    /**
+     * Cambia tras cada acción que modifica la partida; empieza en la hora para no repetirse si se crea otra sala con
+     * el mismo nombre (se usa como ETag de la vista de espectador).
+     */
+    private final AtomicLong version;
+    private volatile SpectatorView spectatorView;
 
     /**
      * -1, juego no empezado
@@ -34,14 +111,115 @@ public class VirusGame {
     private int currentPlayer = -1;
 
     public VirusGame(String password) {
+        this(password, false);
+    }
+
+    public VirusGame(String password, boolean salaGrande) {
         this.password = password;
+        this.salaGrande = salaGrande;
         this.players = new CopyOnWriteArrayList<>();
+        this.porNombre = new ConcurrentHashMap<>();
         this.mazo = crearMazo();
+        this.barajas = 1;
+        this.version = new AtomicLong(System.currentTimeMillis() << 16);
         this.ozam = new CopyOnWriteArrayList<>();
         this.messages = new CopyOnWriteArrayList<>();
         this.finDeLaPartida = false;
     }
 
+    private VirusGame(String password, boolean salaGrande, int barajas, long version, List<Player> players, List<Carta> mazo, List<Carta> ozam, List<Msg> messages, boolean finDeLaPartida, int currentPlayer) {
+        this.password = password;
+        this.salaGrande = salaGrande;
+        this.barajas = barajas;
+        this.version = new AtomicLong(version);
+        this.players = players;
+        this.porNombre = new ConcurrentHashMap<>();
+        for (Player p : players)
+            porNombre.put(p.getName(), p);
+        this.mazo = mazo;
+        this.ozam = ozam;
+        this.messages = messages;
+        this.finDeLaPartida = finDeLaPartida;
+        this.currentPlayer = currentPlayer;
+    }
+
+    /**
+     * Escribe la partida en binario compacto (las cartas como ordinales) para hibernarla, ver {@link #rehidrata}.
+     */
+    public void hiberna(DataOutput out) throws IOException {
+        out.writeUTF(password);
+        out.writeBoolean(salaGrande);
+        out.writeShort(barajas);
+        out.writeLong(version.get());
+        out.writeBoolean(finDeLaPartida);
+        out.writeInt(currentPlayer);
+        escribeCartas(out, mazo);
+        escribeCartas(out, ozam);
+        out.writeShort(players.size());
+        for (Player p : players) {
+            out.writeUTF(p.getAuth().getPlayerId());
+            out.writeUTF(p.getAuth().getPassword());
+            escribeCartas(out, p.getMano());
+            out.writeByte(p.getJugada().size());
+            for (List<Carta> jugada : p.getJugada())
+                escribeCartas(out, jugada);
+        }
+        out.writeInt(messages.size());
+        for (Msg m : messages) {
+            out.writeByte(m.getEvento().ordinal());
+            out.writeShort(m.getJugadorA());
+            out.writeShort(m.getJugadorB());
+            out.writeByte(m.getCartaA() == null ? -1 : m.getCartaA().ordinal());
+            out.writeByte(m.getCartaB() == null ? -1 : m.getCartaB().ordinal());
+        }
+    }
+
+    public static VirusGame rehidrata(DataInput in) throws IOException {
+        final String password = in.readUTF();
+        final boolean salaGrande = in.readBoolean();
+        final int barajas = in.readShort();
+        final long version = in.readLong();
+        final boolean finDeLaPartida = in.readBoolean();
+        final int currentPlayer = in.readInt();
+        final List<Carta> mazo = new CopyOnWriteArrayList<>(leeCartas(in));
+        final List<Carta> ozam = new CopyOnWriteArrayList<>(leeCartas(in));
+        final List<Player> players = new CopyOnWriteArrayList<>();
+        for (int i = in.readShort(), asiento = 0; asiento < i; asiento++) {
+            final Player p = new Player(new Auth(in.readUTF(), in.readUTF()), asiento, leeCartas(in));
+            final List<List<Carta>> jugadas = new ArrayList<>();
+            for (int j = in.readByte(); j > 0; j--)
+                jugadas.add(new CopyOnWriteArrayList<>(leeCartas(in)));
+            p.setJugada(jugadas);
+            players.add(p);
+        }
+        final Evento[] eventos = Evento.values();
+        final Carta[] cartas = Carta.values();
+        final List<Msg> messages = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            final Evento evento = eventos[in.readByte()];
+            final int jugadorA = in.readShort();
+            final int jugadorB = in.readShort();
+            final byte cartaA = in.readByte();
+            final byte cartaB = in.readByte();
+            messages.add(new Msg(players, evento, jugadorA, jugadorB, cartaA < 0 ? null : cartas[cartaA], cartaB < 0 ? null : cartas[cartaB]));
+        }
+        return new VirusGame(password, salaGrande, barajas, version, players, mazo, ozam, new CopyOnWriteArrayList<>(messages), finDeLaPartida, currentPlayer);
+    }
+
+    private static void escribeCartas(DataOutput out, List<Carta> cartas) throws IOException {
+        out.writeShort(cartas.size());
+        for (Carta c : cartas)
+            out.writeByte(c.ordinal());
+    }
+
+    private static List<Carta> leeCartas(DataInput in) throws IOException {
+        final Carta[] cartas = Carta.values();
+        final List<Carta> xs = new ArrayList<>();
+        for (int i = in.readShort(); i > 0; i--)
+            xs.add(cartas[in.readByte()]);
+        return xs;
+    }
+
     private static List<Carta> crearMazo() {
         final List<Carta> m = new CopyOnWriteArrayList<>();
         m.add(TRATAMIENTO_TRANSPLANTA_TODO);
@@ -77,31 +255,59 @@ public class VirusGame {
     }
 
     private static boolean isInmune(List<Carta> jugada) {
-        return jugada.size() > 2 && jugada.stream().filter(c -> c.isOrgano()).count() == 1 && jugada.stream().filter(c -> c.isMedicina()).count() == 2;
+        if (jugada.size() < 3)
+            return false;
+        int organos = 0;
+        int medicinas = 0;
+        for (Carta c : jugada)
+            if (c.isOrgano())
+                organos++;
+            else if (c.isMedicina())
+                medicinas++;
+        return organos == 1 && medicinas == 2;
     }
 
     private static boolean jugadaSana(List<Carta> jugada) {
-        return jugada != null && !jugada.isEmpty() && jugada.stream().noneMatch(c -> c.isVirus());
+        if (jugada == null || jugada.isEmpty())
+            return false;
+        for (Carta c : jugada)
+            if (c.isVirus())
+                return false;
+        return true;
     }
 
     private static boolean jugadaGanadora(Player player) {
-        return player.getJugada().stream().filter(VirusGame::jugadaSana).count() > 3;
+        int sanas = 0;
+        for (List<Carta> jugada : player.getJugada())
+            if (jugadaSana(jugada))
+                sanas++;
+        return sanas > 3;
+    }
+
+    // sin private para que los benchmarks (src/jmh) puedan preparar la partida
+    Player porNombre(String playerId) {
+        return playerId == null ? null : porNombre.get(playerId);
     }
 
     private Either<String, Player> player(String playerId) {
-        for (Player p : players)
-            if (p.getName().equals(playerId))
-                return right(p);
-        return left("El jugador no existe");
+        return ofNullable(porNombre(playerId), "El jugador no existe");
     }
 
-    public Either<String, Void> join(Auth auth) {
+    // sincronizado para que el asiento de cada jugador sea su posición en la lista
+    public synchronized Either<String, Void> join(Auth auth) {
         if (isPlaying())
             return left("El juego ya ha empezado, no puedes unirte!");
+        if (auth.getPlayerId() == null)
+            return left("¡Tienes que tener un nombre de jugador!");
         return player(auth.getPlayerId())
                 .either(ignore -> {
-                    players.add(new Player(auth, coge3cartas()));
-                    msg("'%s' se une a la partida!", auth.getPlayerId());
+                    if (salaGrande && players.size() >= barajas * JUGADORES_POR_BARAJA)
+                        nuevaBaraja();
+                    final Player p = new Player(auth, players.size(), coge3cartas());
+                    players.add(p);
+                    porNombre.put(p.getName(), p);
+                    msg(JOIN, p);
+                    cambio();
                     return right(null);
                 }, ignore -> left("El jugador ya existe en la sala!"));
     }
@@ -116,7 +322,8 @@ public class VirusGame {
                 .guard(ignore -> players.size() > 0, "¡No hay jugadores aún!")
                 .map(ignore -> {
                     currentPlayer = (int) (Math.random() * players.size());
-                    msg("¡Empieza la partida '%s'!", players.get(currentPlayer).getName());
+                    msg(START, players.get(currentPlayer));
+                    cambio();
                     return null;
                 });
     }
@@ -134,40 +341,134 @@ public class VirusGame {
     }
 
     private Either<String, Player> findPlayer(String aplayer) {
-        return maybe(players.stream().filter(q -> q.getName().equals(aplayer)).findAny(), "El jugador '" + aplayer + "' no existe!");
+        final Player p = porNombre(aplayer);
+        return p != null ? right(p) : left(NO_EXISTE_DESTINO.mensaje(null, aplayer, null, null));
     }
 
-    private Either<String, Player> asPlayer(Auth player) {
-        return findPlayer(player.getPlayerId()).guard(p -> p.getAuth().is(player), "El jugador no existe o contraseña inválida!");
+    /**
+     * @return null si {@code p} es el jugador que tiene el turno
+     */
+    private Fallo turno(Auth auth, Player p) {
+        if (p == null)
+            return NO_EXISTES;
+        if (!p.getAuth().is(auth))
+            return CONTRASENA;
+        return isCurrentPlayer(p) ? null : NO_ES_TU_TURNO;
     }
 
-    private Either<String, Player> asCurrentPlayer(Auth player) {
-        return asPlayer(player).guard(this::isCurrentPlayer, "No es el turno de '" + player.getPlayerId() + "'");
+    private Either<String, Player> asCurrentPlayer(Auth auth) {
+        final Player p = porNombre(auth.getPlayerId());
+        final Fallo f = turno(auth, p);
+        return f == null ? right(p) : left(f.mensaje(auth.getPlayerId(), null, null, null));
     }
 
     private List<Carta> coge3cartas() {
         return asList(cogeCarta(), cogeCarta(), cogeCarta());
     }
 
+    private void nuevaBaraja() {
+        mazo.addAll(crearMazo());
+        barajas++;
+    }
+
     private Carta cogeCarta() {
         if (mazo.isEmpty()) {
-            if (ozam.isEmpty())
-                throw new IllegalStateException("sin cartas :/");
-            mazo.addAll(ozam);
-            ozam.clear();
-            Collections.shuffle(mazo);
+            if (ozam.isEmpty()) {
+                if (!salaGrande)
+                    throw new IllegalStateException("sin cartas :/");
+                nuevaBaraja();
+            } else {
+                // barajamos fuera, barajar sobre la CopyOnWriteArrayList copia el array en cada intercambio
+                final List<Carta> xs = new ArrayList<>(ozam);
+                ozam.clear();
+                Collections.shuffle(xs);
+                mazo.addAll(xs);
+            }
         }
-        return mazo.remove(0);
+        // el mazo está barajado, cogemos del final para no desplazar el resto
+        return mazo.remove(mazo.size() - 1);
     }
 
-    public Either<String, GameStatus> status(Auth auth) {
+    /**
+     * @param desde  primer mensaje que se devuelve, los anteriores ya los tiene el cliente
+     * @param textos si los mensajes llevan también el texto formateado, para los clientes antiguos
+     */
+    public Either<String, GameStatus> status(Auth auth, int desde, boolean textos) {
         final GameStatus st = new GameStatus();
         st.setTerminada(finDeLaPartida);
-        st.setMessages(messages);
-        st.setPlayers(players.stream().map(e -> e.getStatus(auth, isCurrentPlayer(e))).collect(toList()));
+        st.setTextos(textos);
+        st.setMessages(mensajesDesde(desde));
+        st.setPlayers(visibles(auth).stream().map(e -> e.getStatus(auth, isCurrentPlayer(e))).collect(toList()));
         return right(st);
     }
 
+    /**
+     * Recorre una instantánea de los mensajes: un subList de la copy-on-write falla si entra otro mensaje mientras se
+     * copia.
+     */
+    private List<Msg> mensajesDesde(int desde) {
+        final List<Msg> xs = new ArrayList<>();
+        int i = 0;
+        for (Msg m : messages)
+            if (i++ >= desde)
+                xs.add(m);
+        return xs;
+    }
+
+    /**
+     * En sala grande cada jugador ve sólo a sus vecinos de mesa, al que tiene el turno y a los de los últimos mensajes.
+     */
+    private List<Player> visibles(Auth auth) {
+        final Player yo = porNombre(auth.getPlayerId());
+        final int n = players.size();
+        if (!salaGrande || yo == null || n <= 2 * VECINOS + 1)
+            return players;
+        final boolean[] visible = new boolean[n];
+        for (int d = -VECINOS; d <= VECINOS; d++)
+            visible[Math.floorMod(yo.getAsiento() + d, n)] = true;
+        if (isPlaying())
+            visible[currentPlayer] = true;
+        // status no está sincronizado con join, puede haber mensajes de jugadores que se han unido después de leer `n`
+        final int total = messages.size();
+        for (int i = Math.max(0, total - MENSAJES_AFECTADOS); i < total; i++) {
+            final Msg m = messages.get(i);
+            if (m.getJugadorA() >= 0 && m.getJugadorA() < n)
+                visible[m.getJugadorA()] = true;
+            if (m.getJugadorB() >= 0 && m.getJugadorB() < n)
+                visible[m.getJugadorB()] = true;
+        }
+        final List<Player> ps = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            if (visible[i])
+                ps.add(players.get(i));
+        return ps;
+    }
+
+    private void cambio() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * La misma vista para todos los espectadores de la partida: todas las manos ocultas. Se genera una vez por cada
+     * cambio de la partida y se reparte tal cual.
+     */
+    public SpectatorView getSpectatorView() {
+        final long v = version.get();
+        final SpectatorView sv = spectatorView;
+        if (sv != null && sv.getVersion() == v)
+            return sv;
+        synchronized (this) {
+            if (spectatorView == null || spectatorView.getVersion() != v) {
+                final GameStatus st = new GameStatus();
+                st.setTerminada(finDeLaPartida);
+                st.setMessages(mensajesDesde(messages.size() - MENSAJES_ESPECTADOR));
+                st.setPlayers(players.stream().map(e -> e.getStatus(null, isCurrentPlayer(e))).collect(toList()));
+                spectatorView = new SpectatorView(v, GameStatusJson.toBytes(Resp.success(st)));
+            }
+            return spectatorView;
+        }
+    }
+
     public Either<String, Void> tirar(Auth auth, Carta tirando) {
         return asCurrentPlayer(auth)
                 .bind(this::isJugando)
@@ -176,10 +477,11 @@ public class VirusGame {
                     if (tirando != null) {
                         p.quitaDeMano(tirando);
                         ozam.add(tirando);
-                        msg("'%s' tira '%s'", p.getName(), tirando.getName());
+                        msg(DISCARD, p, null, tirando, null);
                     }
                     return ganaOrobayturno(p);
-                });
+                })
+                .withRight(ignore -> cambio());
     }
 
     private Either<String, Void> ganaOrobayturno(Player p) {
@@ -187,15 +489,19 @@ public class VirusGame {
             finDeLaPartida = true;
         else {
             p.getMano().add(cogeCarta());
-            msg("'%s' roba carta", p.getName());
+            msg(DRAW, p);
             currentPlayer = (currentPlayer + 1) % players.size();
-            msg("Es el turno de '%s'", players.get(currentPlayer).getName());
+            msg(TURN, players.get(currentPlayer));
         }
         return right(null);
     }
 
-    private void msg(String format, Object... args) {
-        messages.add(new Msg(false, String.format(format, args)));
+    private void msg(Evento evento, Player a) {
+        msg(evento, a, null, null, null);
+    }
+
+    private void msg(Evento evento, Player a, Player b, Carta cartaA, Carta cartaB) {
+        messages.add(new Msg(players, evento, a == null ? -1 : a.getAsiento(), b == null ? -1 : b.getAsiento(), cartaA, cartaB));
     }
 
     public Either<String, Void> aplayer(Auth auth, Carta carta, String aplayer) {
@@ -208,10 +514,10 @@ public class VirusGame {
                         .map(ap -> {
                             p.quitaDeMano(carta);
                             if (carta.isOrgano()) {
-                                msg("'%s' se añade un '%s'", p.getName(), carta.getName());
+                                msg(ADD_ORGAN, p, null, carta, null);
                                 p.addOrgano(carta);
                             } else if (TRATAMIENTO_TRANSPLANTA_TODO.equals(carta)) {
-                                msg("¡'%s' hace transplante total con '%s'!", p.getName(), aplayer);
+                                msg(TRANSPLANT_ALL, p, ap, null, null);
                                 final List<List<Carta>> xs = new ArrayList<>(p.getJugada());
                                 p.setJugada(ap.getJugada());
                                 ap.setJugada(xs);
@@ -220,16 +526,18 @@ public class VirusGame {
                             }
                             return null;
                         })
-                        .bind(ignore -> ganaOrobayturno(p)));
+                        .bind(ignore -> ganaOrobayturno(p)))
+                .withRight(ignore -> cambio());
     }
 
     public Either<String, Void> usar(Auth auth, Carta carta) {
         return asCurrentPlayer(auth)
                 .bind(this::isJugando)
-                .guard(ignore -> TRATAMIENTO_DESCARTE.equals(carta) || TRATAMIENTO_INFECCION.equals(carta),
-                        "Sólo '" + TRATAMIENTO_DESCARTE.getName() + "' y '" + TRATAMIENTO_INFECCION.getName() + "' pueden usarse aquí")
-                .bind(player -> TRATAMIENTO_DESCARTE.equals(carta) ? usarDescarte(player) : usarInfeccion(player))
-                .bind(ignore -> tirar(auth, carta));
+                .bind(player -> TRATAMIENTO_DESCARTE.equals(carta) ? usarDescarte(player)
+                        : TRATAMIENTO_INFECCION.equals(carta) ? usarInfeccion(player)
+                        : left(SOLO_USAR.mensaje(auth.getPlayerId(), null, carta, null)))
+                .bind(ignore -> tirar(auth, carta))
+                .withRight(ignore -> cambio());
     }
 
     private Either<String, Void> usarInfeccion(Player player) {
@@ -245,18 +553,28 @@ public class VirusGame {
     }
 
     private boolean posibleInfeccion(Player player, List<Carta> jugada) {
-        for (Carta carta : new ArrayList<>(jugada))
+        for (Carta carta : jugada)
             if (carta.isVirus() && posibleInfeccion(player, jugada, carta))
                 return true;
         return false;
     }
 
     private boolean posibleInfeccion(Player player, List<Carta> jugada, Carta virus) {
-        // aleatoriamente elegimos los jugadores candidatos
-        List<Player> ps = new ArrayList<>(players);
+        // aleatoriamente elegimos los jugadores candidatos, sólo los que tienen algún órgano que admita el virus
+        List<Player> ps = new ArrayList<>();
+        for (Player p : players)
+            if (p != player && admiteVirus(p, virus))
+                ps.add(p);
         Collections.shuffle(ps);
         for (Player p : ps)
-            if (p != player && posibleInfeccion(player, jugada, virus, p))
+            if (posibleInfeccion(player, jugada, virus, p))
+                return true;
+        return false;
+    }
+
+    private static boolean admiteVirus(Player p, Carta virus) {
+        for (List<Carta> jugada : p.getJugada())
+            if (jugada.get(0).admite(virus) && !isInmune(jugada))
                 return true;
         return false;
     }
@@ -266,14 +584,12 @@ public class VirusGame {
         List<Carta> organos = new ArrayList<>(Carta.getOrganos());
         Collections.shuffle(organos);
         for (Carta organo : organos)
-            if (aOtroUnVirus(player, otro, virus, organo)
-                    .withRight(tirar -> {
-                        if (tirar)
-                            ozam.add(virus);
-                        jugada.remove(virus);
-                    })
-                    .isRight())
+            if (validaVirus(otro, virus, organo) == null) {
+                if (aOtroUnVirus(player, otro, virus, organo))
+                    ozam.add(virus);
+                jugada.remove(virus);
                 return true;
+            }
         return false;
     }
 
@@ -283,20 +599,60 @@ public class VirusGame {
                 ozam.addAll(p.getMano());
                 p.getMano().clear();
             }
-        msg("¡Todos los jugadores excepto '%s' se quedan sin cartas!", player.getName());
+        msg(DISCARD_ALL, player);
         return right(null);
     }
 
     public Either<String, Void> acarta(Auth auth, Carta cartaA, String aPlayer, Carta cartaB) {
-        return asCurrentPlayer(auth)
-                .bind(this::isJugando)
-                .guard(ignore -> cartaB.isOrgano(), "Las cartas de destino siempre tienen que ser un órgano")
-                .bind(playerA -> findPlayer(aPlayer)
-                        .bind(playerB -> playerA.getAuth().is(playerB.getAuth()) ? aSuCarta(playerA, cartaA, cartaB) : aOtroCarta(playerA, playerB, cartaA, cartaB))
-                        .bind(tirala -> tirala ? tirar(auth, cartaA) : ganaOrobayturno(playerA).withRight(ignore -> playerA.quitaDeMano(cartaA))));
+        // se valida todo antes de tocar la partida, el texto del fallo sólo se genera si se devuelve
+        final Player playerA = porNombre(auth.getPlayerId());
+        final Player playerB = porNombre(aPlayer);
+        Fallo f = turno(auth, playerA);
+        if (f == null)
+            f = jugando();
+        if (f == null && !cartaB.isOrgano())
+            f = DESTINO_NO_ORGANO;
+        if (f == null && playerB == null)
+            f = NO_EXISTE_DESTINO;
+        final boolean aSi = f == null && playerA.getAuth().is(playerB.getAuth());
+        // en un transplante cartaA es un órgano de la jugada, la carta que se gasta es la de transplante
+        final boolean transplante = !aSi && cartaA.isOrgano();
+        if (f == null && !transplante && !playerA.getMano().contains(cartaA))
+            f = NO_TIENES_CARTA;
+        if (f == null)
+            f = aSi ? validaSuCarta(playerA, cartaA, cartaB) : validaOtroCarta(playerA, playerB, cartaA, cartaB);
+        if (f != null)
+            return left(f.mensaje(auth.getPlayerId(), aPlayer, cartaA, cartaB));
+
+        final boolean tirala = aSi ? aSuCarta(playerA, cartaA, cartaB) : aOtroCarta(playerA, playerB, cartaA, cartaB);
+        if (tirala)
+            return tirar(auth, cartaA).withRight(ignore -> cambio());
+        ganaOrobayturno(playerA);
+        if (!transplante)
+            playerA.quitaDeMano(cartaA);
+        cambio();
+        return right(null);
+    }
+
+    private Fallo validaOtroCarta(Player pa, Player pb, Carta carta, Carta organo) {
+        if (carta.isVirus())
+            return validaVirus(pb, carta, organo);
+
+        if (carta.isOrgano())
+            return validaTransplante(pa, pb, carta, organo);
+
+        if (TRATAMIENTO_ROBAR_ORGANO.equals(carta))
+            return validaRobo(pa, pb, organo);
+
+        return NO_APLICABLE_A_OTRO;
     }
 
-    private Either<String, Boolean> aOtroCarta(Player pa, Player pb, Carta carta, Carta organo) {
+    /**
+     * Aplica la carta ya validada con {@link #validaOtroCarta}
+     *
+     * @return si hay que tirar la carta
+     */
+    private boolean aOtroCarta(Player pa, Player pb, Carta carta, Carta organo) {
         if (carta.isVirus())
             return aOtroUnVirus(pa, pb, carta, organo);
 
@@ -306,109 +662,154 @@ public class VirusGame {
         if (TRATAMIENTO_ROBAR_ORGANO.equals(carta))
             return aOtroRobar(pa, pb, organo);
 
-        return left("Al órgano de un oponente sólo puedes aplicar o un virus, o un transplante (envía tu peor órgano a su mejor órgano) o un robo");
-    }
-
-    private Either<String, Boolean> aOtroRobar(Player pa, Player pb, Carta organoB) {
-        return pb
-                .getJugada(organoB)
-                .mapLeft(ignore -> "El jugador '" + pb.getName() + "' no tiene un '" + organoB.getName() + "'")
-                .guard(jugada -> !isInmune(jugada), "No puedes robar un órgano inmune")
-                .guard(ignore -> pa.getJugada(organoB).isLeft(), "Ya tienes ese órgano, no lo puedes robar.")
-                .map(jugadaB -> {
-                    pb.getJugada().remove(jugadaB);
-                    pa.getJugada().add(jugadaB);
-                    msg("'%s' roba el '%s' a '%s'", pa.getName(), organoB.getName(), pb.getName());
-                    return true;
-                });
+        throw new IllegalStateException("carta no validada!");
+    }
+
+    private static Fallo validaRobo(Player pa, Player pb, Carta organoB) {
+        final List<Carta> jugadaB = pb.getJugada(organoB);
+        if (jugadaB == null)
+            return NO_TIENE_ORGANO_ROBO;
+        if (isInmune(jugadaB))
+            return ROBO_INMUNE;
+        return pa.getJugada(organoB) != null ? YA_TIENES_ORGANO_ROBO : null;
+    }
+
+    private boolean aOtroRobar(Player pa, Player pb, Carta organoB) {
+        final List<Carta> jugadaB = pb.getJugada(organoB);
+        pb.getJugada().remove(jugadaB);
+        pa.getJugada().add(jugadaB);
+        msg(STEAL, pa, pb, organoB, null);
+        return true;
+    }
+
+    private static Fallo validaTransplante(Player pa, Player pb, Carta organoA, Carta organoB) {
+        if (!pa.getMano().contains(TRATAMIENTO_TRANSPLANTA_1))
+            return SIN_TRANSPLANTE;
+        final boolean mismo = organoA.equals(organoB);
+        if (!mismo && pb.getJugada(organoA) != null)
+            return YA_TIENE_ORGANO;
+        if (!mismo && pa.getJugada(organoB) != null)
+            return YA_TIENES_ORGANO;
+        if (pa.getJugada(organoA) == null)
+            return NO_TIENES_ORGANO;
+        final List<Carta> jugadaB = pb.getJugada(organoB);
+        if (jugadaB == null)
+            return NO_TIENE_ORGANO;
+        return isInmune(jugadaB) ? TRANSPLANTE_INMUNE : null;
+    }
+
+    private boolean aOtroTransplanta(Player pa, Player pb, Carta organoA, Carta organoB) {
+        final List<Carta> jugadaA = pa.getJugada(organoA);
+        final List<Carta> jugadaB = pb.getJugada(organoB);
+        // usamos la carta de transplante
+        pa.quitaDeMano(TRATAMIENTO_TRANSPLANTA_1);
+        ozam.add(TRATAMIENTO_TRANSPLANTA_1);
+        // intercambiamos
+        pa.getJugada().remove(jugadaA);
+        pb.getJugada().remove(jugadaB);
+        pa.getJugada().add(jugadaB);
+        pb.getJugada().add(jugadaA);
+        msg(TRANSPLANT, pa, pb, organoA, organoB);
+        return false;
     }
 
-    private Either<String, Boolean> aOtroTransplanta(Player pa, Player pb, Carta organoA, Carta organoB) {
-        return guard(pa.getMano().stream().anyMatch(TRATAMIENTO_TRANSPLANTA_1::equals), "Para poder transplantar un órgano tienes que tener la carta '" + TRATAMIENTO_TRANSPLANTA_1.getName() + "'")
-                .guard(ignore -> pb.getJugada(organoA).isLeft() || organoA.equals(organoB),
-                        "El jugador '" + pb.getName() + "' ya tiene un '" + organoA.getName() + "'")
-                .guard(ignore -> pa.getJugada(organoB).isLeft() || organoA.equals(organoB),
-                        "Ya tienes un '" + organoB.getName() + "'")
-                .bind(ignore -> pa.getJugada(organoA).mapLeft(ignore2 -> "No tienes ese órgano")
-                        .bind(jugadaA -> pb.getJugada(organoB).mapLeft(ignore2 -> "No tiene ese órgano")
-                                .guard(jugadaB -> !isInmune(jugadaB), "No puedes trasplantar un órgano inmune")
-                                .bind(jugadaB -> {
-                                    // usamos la carta de transplante
-                                    if (!pa.getMano().remove(TRATAMIENTO_TRANSPLANTA_1))
-                                        return left("No se ha podido quitar la carta de transplante!?");
-                                    ozam.add(TRATAMIENTO_TRANSPLANTA_1);
-                                    // intercambiamos
-                                    pa.getJugada().remove(jugadaA);
-                                    pb.getJugada().remove(jugadaB);
-                                    pa.getJugada().add(jugadaB);
-                                    pb.getJugada().add(jugadaA);
-                                    msg("'%s' cambia su '%s' por el '%s' de '%s'", pa.getName(), organoA.getName(), organoB.getName(), pb.getName());
-                                    return right(false);
-                                })));
-    }
-
-    private Either<String, Boolean> aOtroUnVirus(Player pa, Player pb, Carta carta, Carta organo) {
-        return pb.getJugada(organo)
-                .guard(ignore -> organo.admite(carta), "Un " + organo.getName() + " no admite " + carta.getName())
-                .guard(jugada -> !isInmune(jugada), "No puedes poner un virus en un órgano inmune")
-                .bind(jugada -> {
-                    for (Carta c : new ArrayList<>(jugada))
-                        if (c.isMedicina()) {
-                            // si hay alguna medicina se cancela
-                            msg("El '%s' anula '%s'", carta.getName(), c.getName());
-                            ozam.add(c);
-                            jugada.remove(c);
-                            return right(true);
-                        } else if (c.isVirus()) {
-                            // si hay otro virus matan el órgano
-                            msg("El jugador '%s' pierde su órgano '%s'", pb.getName(), organo.getName());
-                            ozam.addAll(jugada);
-                            pb.getJugada().remove(jugada);
-                            return right(true);
-                        }
-                    jugada.add(carta);
-                    msg("El '%s' de '%s' queda infectado por '%s'", organo.getName(), pb.getName(), carta.getName());
-                    return right(false);
-                });
+    private static Fallo validaVirus(Player pb, Carta virus, Carta organo) {
+        final List<Carta> jugada = pb.getJugada(organo);
+        if (jugada == null)
+            return NO_EXISTE_ORGANO;
+        if (!organo.admite(virus))
+            return NO_ADMITE;
+        return isInmune(jugada) ? VIRUS_INMUNE : null;
+    }
+
+    private boolean aOtroUnVirus(Player pa, Player pb, Carta carta, Carta organo) {
+        final List<Carta> jugada = pb.getJugada(organo);
+        // la jugada es copy-on-write, se recorre una instantánea aunque la modifiquemos
+        for (Carta c : jugada)
+            if (c.isMedicina()) {
+                // si hay alguna medicina se cancela
+                msg(CANCEL, pa, pb, carta, c);
+                ozam.add(c);
+                jugada.remove(c);
+                return true;
+            } else if (c.isVirus()) {
+                // si hay otro virus matan el órgano
+                msg(ORGAN_LOST, pa, pb, organo, carta);
+                ozam.addAll(jugada);
+                pb.getJugada().remove(jugada);
+                return true;
+            }
+        jugada.add(carta);
+        msg(INFECT, pa, pb, organo, carta);
+        return false;
     }
 
-    private Either<String, Boolean> aSuCarta(Player player, Carta medicina, Carta organo) {
-        return guard(medicina.isMedicina(), "Sólo puedes aplicarte medicinas")
-                .guard(ignore -> organo.admite(medicina), "Esa medicina no sirve para este órgano")
-                .bind(ignore -> player.getJugada(organo))
-                .bind(jugada -> {
-                    for (Carta c : jugada)
-                        if (c.isVirus() && (organo.isComodin() || c.admite(medicina))) {
-                            msg("'%s' aplica '%s' al '%s'", player.getName(), medicina.getName(), c.getName());
-                            jugada.remove(c);
-                            // hemos aplicado para quitar un virus
-                            return right(true);
-                        }
-                    // no hay virus posible
-                    if (jugada.stream().anyMatch(c -> c.isVirus()))
-                        return left("Ouch! esta medicina no cura cierto virus?!");
-                    if (isInmune(jugada))
-                        return left("El órgano ya es inmune, no se puede aplicar más medicina");
-                    jugada.add(medicina);
-                    msg("'%s' aplica '%s' a su '%s'", player.getName(), medicina.getName(), organo.getName());
-                    if (isInmune(jugada))
-                        msg("¡El jugador '%s' ha inmunizado su '%s'!", player.getName(), organo.getName());
-                    return right(false);
-                });
+    /**
+     * @return el virus que cura la medicina o null si no hay ninguno
+     */
+    private static Carta virusCurable(List<Carta> jugada, Carta organo, Carta medicina) {
+        for (Carta c : jugada)
+            if (c.isVirus() && (organo.isComodin() || c.admite(medicina)))
+                return c;
+        return null;
+    }
+
+    private static Fallo validaSuCarta(Player player, Carta medicina, Carta organo) {
+        if (!medicina.isMedicina())
+            return SOLO_MEDICINAS;
+        if (!organo.admite(medicina))
+            return MEDICINA_NO_SIRVE;
+        final List<Carta> jugada = player.getJugada(organo);
+        if (jugada == null)
+            return NO_EXISTE_ORGANO;
+        if (virusCurable(jugada, organo, medicina) != null)
+            return null;
+        // no hay virus posible
+        for (Carta c : jugada)
+            if (c.isVirus())
+                return MEDICINA_NO_CURA;
+        return isInmune(jugada) ? YA_INMUNE : null;
+    }
+
+    private boolean aSuCarta(Player player, Carta medicina, Carta organo) {
+        final List<Carta> jugada = player.getJugada(organo);
+        final Carta virus = virusCurable(jugada, organo, medicina);
+        if (virus != null) {
+            msg(CURE, player, null, medicina, virus);
+            ozam.add(virus);
+            jugada.remove(virus);
+            // hemos aplicado para quitar un virus
+            return true;
+        }
+        jugada.add(medicina);
+        msg(MEDICATE, player, null, medicina, organo);
+        if (isInmune(jugada))
+            msg(IMMUNIZE, player, null, organo, null);
+        return false;
     }
 
-    private boolean invariantes() {
+    private boolean invariantes(int cartasEsperadas) {
         boolean ok = true;
-        final int totalCartas = ozam.size() + mazo.size() + players.stream().mapToInt(p -> (int) (p.getMano().size() + p.getJugada().stream().mapToLong(Collection::size).sum())).sum();
-        if (totalCartas != 65) {
+        int totalCartas = ozam.size() + mazo.size();
+        for (Player p : players) {
+            totalCartas += p.getMano().size();
+            for (List<Carta> jugada : p.getJugada())
+                totalCartas += jugada.size();
+        }
+        if (totalCartas != cartasEsperadas) {
             System.err.printf("ERROR DE INVARIANZA: el nº de cartas totales es de %d%n", totalCartas);
             ok = false;
         }
         return ok;
     }
 
+    private Fallo jugando() {
+        invariantes(barajas * CARTAS_POR_BARAJA);
+        return finDeLaPartida ? TERMINADA : null;
+    }
+
     private <T> Either<String, T> isJugando(T x) {
-        invariantes();
-        return finDeLaPartida ? left("La partida ha terminado") : right(x);
+        final Fallo f = jugando();
+        return f == null ? right(x) : left(f.mensaje(null, null, null, null));
     }
 }
@@ -3,13 +3,30 @@ package com.computermind.virusgame;
 import com.computermind.sfp.Either;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 import static com.computermind.sfp.Either.left;
-import static com.computermind.sfp.Either.ofNullable;
 import static com.computermind.sfp.Either.right;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_DESCARTE;
 import static com.computermind.virusgame.Carta.TRATAMIENTO_INFECCION;
@@ -17,43 +34,183 @@ import static com.computermind.virusgame.Carta.TRATAMIENTO_INFECCION;
 @Service
 public class VirusGameService {
 
-    private Cache<String, VirusGame> games;
+    /**
+     * Por encima de {@code max-active-games} se hibernan antes de tiempo las salas menos usadas, pero sólo si llevan al
+     * menos esto sin peticiones (mucho más que el polling de index.html, no se hiberna una sala con jugadores conectados)
+     */
+    private static final long MIN_INACTIVA = TimeUnit.SECONDS.toNanos(30);
+
+    @Value("${virusgame.hibernate-after-minutes:5}")
+    private int hibernateAfterMinutes;
+
+    @Value("${virusgame.max-active-games:1000}")
+    private int maxActiveGames;
+
+    /**
+     * Salas activas, hasta {@code max-active-games}: se hibernan por inactividad, nunca una que se está usando.
+     */
+    private final Map<String, Sala> games = new ConcurrentHashMap<>();
+
+    /**
+     * Salas sin actividad, compactadas fuera del heap (ver {@link VirusGame#hiberna}).
+     */
+    private Cache<String, ByteBuffer> hibernadas;
+
+    /**
+     * Cada petición usa la partida con el lock de lectura y la hibernación toma el de escritura, así nadie modifica
+     * una partida que ya se ha serializado.
+     */
+    private static final class Sala {
+        private final VirusGame game;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long ultimoAcceso = System.nanoTime();
+        private boolean hibernada;
+
+        private Sala(VirusGame game) {
+            this.game = game;
+        }
+    }
 
     @PostConstruct
     public void initialize() {
-        games = CacheBuilder
+        hibernadas = CacheBuilder
                 .newBuilder()
-                .maximumSize(100)
+                .maximumSize(10000)
                 .expireAfterAccess(1, TimeUnit.HOURS)
                 .build();
     }
 
-    private Either<String, VirusGame> get(String gameId) {
-        return ofNullable(games.getIfPresent(gameId), "¡La sala no existe!");
+    @Scheduled(fixedDelay = 60000)
+    public void hibernaInactivas() {
+        final long limite = System.nanoTime() - TimeUnit.MINUTES.toNanos(hibernateAfterMinutes);
+        for (Map.Entry<String, Sala> e : games.entrySet())
+            if (e.getValue().ultimoAcceso - limite < 0)
+                hiberna(e.getKey(), e.getValue(), limite);
+    }
+
+    /**
+     * Hiberna las salas usadas hace más tiempo (y al menos {@link #MIN_INACTIVA}) hasta dejar un 10% libre.
+     */
+    private void hibernaMenosUsadas() {
+        final long limite = System.nanoTime() - MIN_INACTIVA;
+        // se ordena por el acceso leído aquí, ultimoAcceso puede cambiar mientras se ordena
+        final List<Map.Entry<String, Sala>> xs = new ArrayList<>();
+        final Map<String, Long> accesos = new HashMap<>();
+        for (Map.Entry<String, Sala> e : games.entrySet()) {
+            final long acceso = e.getValue().ultimoAcceso - limite;
+            if (acceso < 0) {
+                xs.add(e);
+                accesos.put(e.getKey(), acceso);
+            }
+        }
+        xs.sort(Comparator.comparingLong(e -> accesos.get(e.getKey())));
+        final int objetivo = maxActiveGames - maxActiveGames / 10;
+        for (int i = 0; i < xs.size() && games.size() > objetivo; i++)
+            hiberna(xs.get(i).getKey(), xs.get(i).getValue(), limite);
+    }
+
+    private void hiberna(String gameId, Sala sala, long limite) {
+        // si tiene peticiones en curso se está usando, no se espera a que acaben
+        if (!sala.lock.writeLock().tryLock())
+            return;
+        try {
+            // alguien la ha usado desde que se eligió para hibernarla
+            if (sala.hibernada || sala.ultimoAcceso - limite >= 0)
+                return;
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            sala.game.hiberna(new DataOutputStream(bytes));
+            final ByteBuffer b = ByteBuffer.allocateDirect(bytes.size());
+            b.put(bytes.toByteArray()).flip();
+            // primero la guardamos y luego la quitamos, así siempre está en uno de los dos sitios
+            hibernadas.put(gameId, b);
+            sala.hibernada = true;
+            games.remove(gameId, sala);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            sala.lock.writeLock().unlock();
+        }
+    }
+
+    private Sala rehidrata(String gameId) {
+        final ByteBuffer b = hibernadas.getIfPresent(gameId);
+        if (b == null)
+            return null;
+        final byte[] bytes = new byte[b.remaining()];
+        b.duplicate().get(bytes);
+        try {
+            final Sala sala = new Sala(VirusGame.rehidrata(new DataInputStream(new ByteArrayInputStream(bytes))));
+            hibernadas.invalidate(gameId);
+            return sala;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Sala sala(String gameId) {
+        final Sala sala = games.get(gameId);
+        if (sala != null)
+            return sala;
+        // computeIfAbsent es atómico por sala, sólo una petición la rehidrata
+        final Sala rehidratada = games.computeIfAbsent(gameId, this::rehidrata);
+        if (rehidratada != null && games.size() > maxActiveGames)
+            hibernaMenosUsadas();
+        return rehidratada;
+    }
+
+    /**
+     * Ejecuta {@code f} sobre la partida sin que pueda hibernarse mientras tanto.
+     */
+    private <T> Either<String, T> get(String gameId, Function<VirusGame, Either<String, T>> f) {
+        while (true) {
+            final Sala sala = sala(gameId);
+            if (sala == null)
+                return left("¡La sala no existe!");
+            sala.lock.readLock().lock();
+            try {
+                if (!sala.hibernada) {
+                    sala.ultimoAcceso = System.nanoTime();
+                    return f.apply(sala.game);
+                }
+            } finally {
+                sala.lock.readLock().unlock();
+            }
+            // se ha hibernado mientras la buscábamos, la rehidratamos
+        }
     }
 
     // create game
-    public Either<String, Void> create(String gameId, String password) {
-        return get(gameId).either(e -> {
-            games.put(gameId, new VirusGame(password));
-            return right(null);
-        }, ignore -> left("¡La sala ya existe!"));
+    public Either<String, Void> create(String gameId, String password, boolean salaGrande) {
+        if (sala(gameId) != null)
+            return left("¡La sala ya existe!");
+        if (games.size() >= maxActiveGames)
+            hibernaMenosUsadas();
+        // todas se están usando
+        if (games.size() >= maxActiveGames)
+            return left("¡Hay demasiadas salas abiertas! prueba dentro de un rato...");
+        if (games.putIfAbsent(gameId, new Sala(new VirusGame(password, salaGrande))) != null)
+            return left("¡La sala ya existe!");
+        return right(null);
     }
 
     public Either<String, Void> join(String gameId, Auth auth) {
-        return get(gameId).bind(g -> g.join(auth));
+        return get(gameId, g -> g.join(auth));
+    }
+
+    public Either<String, GameStatus> status(String gameId, Auth auth, int desde, boolean textos) {
+        return get(gameId, g -> g.status(auth, desde, textos));
     }
 
-    public Either<String, GameStatus> status(String gameId, Auth auth) {
-        return get(gameId).bind(g -> g.status(auth));
+    public Either<String, SpectatorView> spectate(String gameId) {
+        return get(gameId, g -> right(g.getSpectatorView()));
     }
 
     public Either<String, Void> start(String gameId, String password) {
-        return get(gameId).bind(g -> g.start(password));
+        return get(gameId, g -> g.start(password));
     }
 
     public Either<String, Void> accion(String gameId, Auth auth, String srcPlayer, String srcKind, String srcTipo, String dstPlayer, String dstKind, String dstTipo) {
-        return get(gameId).bind(g -> {
+        return get(gameId, g -> {
 
             if (!auth.getPlayerId().equals(srcPlayer))
                 return left("únicamente acciones del mismo jugador están implementadas!");
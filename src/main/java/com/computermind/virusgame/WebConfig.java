@@ -0,0 +1,54 @@
+package com.computermind.virusgame;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Los assets llevan huella en el nombre (ver tarea staticAssets), nunca cambian. Spring 5.2 no sabe poner
+     * `immutable`; el handler de recursos sólo la aplica cuando encuentra el recurso, así un 404 no se cachea.
+     */
+    private static final CacheControl CACHE_INMUTABLE = new CacheControl() {
+        @Override
+        public String getHeaderValue() {
+            return "public, max-age=31536000, immutable";
+        }
+    };
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionControl)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/admission");
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // delante de Jackson para que los status no pasen por reflexión
+        converters.add(0, new GameStatusHttpMessageConverter());
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CACHE_INMUTABLE)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+}